@@ -3,10 +3,7 @@ package dev.medzik.otp;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.net.URISyntaxException;
-import java.nio.ByteBuffer;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 
@@ -15,6 +12,8 @@ import java.security.NoSuchAlgorithmException;
  */
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
 public final class HOTPGenerator {
+    private static final int[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000};
+
     private OTPParameters params;
 
     /**
@@ -85,37 +84,27 @@ public final class HOTPGenerator {
             throw new IllegalArgumentException("Counter cannot be negative");
         }
 
-        byte[] counterBytes = longToBytes(counter);
-
-        byte[] hash = generateHash(params.getSecret().getValue(), counterBytes);
+        byte[] hash = generateHash(params.getSecret().getValue(), counter);
         int code = getCodeFromHash(hash);
 
         // left pad with 0s for an n-digit code
-        return String.format("%0" + params.getDigits().getValue() + "d", code);
-    }
+        char[] chars = new char[params.getDigits().getValue()];
+        for (int i = chars.length - 1; i >= 0; i--) {
+            chars[i] = (char) ('0' + code % 10);
+            code /= 10;
+        }
 
-    private static byte[] longToBytes(long value) {
-        return ByteBuffer.allocate(Long.BYTES).putLong(value).array();
+        return new String(chars);
     }
 
-    private byte[] generateHash(byte[] secret, byte[] data) {
-        Mac mac;
-
-        SecretKeySpec key = new SecretKeySpec(secret, "RAW");
-
+    private byte[] generateHash(byte[] secret, long counter) {
         try {
-            mac = Mac.getInstance(params.getAlgorithm().getHmacAlgorithm());
+            return HmacUtils.hmac(params.getAlgorithm(), secret, counter);
         } catch (NoSuchAlgorithmException e) {
-            throw new IllegalStateException("Algorithm should be supported");
-        }
-
-        try {
-            mac.init(key);
+            throw new IllegalStateException("Algorithm " + params.getAlgorithm().getHmacAlgorithm() + " is not supported", e);
         } catch (InvalidKeyException e) {
             throw new IllegalArgumentException(e);
         }
-
-        return mac.doFinal(data);
     }
 
     private int getCodeFromHash(byte[] hash) {
@@ -127,6 +116,6 @@ public final class HOTPGenerator {
                 ((hash[offset + 2] & 0xff) << 8) |
                 (hash[offset + 3] & 0xff);
 
-        return truncatedHash % (int) Math.pow(10, digits);
+        return truncatedHash % POWERS_OF_TEN[digits];
     }
 }
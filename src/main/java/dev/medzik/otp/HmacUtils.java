@@ -0,0 +1,33 @@
+package dev.medzik.otp;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * HMAC calculation used on the HOTP hot path.
+ * <p>
+ * A variant reusing {@link Mac} instances for Java 17+ is shipped in {@code META-INF/versions}
+ * of the multi-release jar.
+ */
+final class HmacUtils {
+    private HmacUtils() {}
+
+    /**
+     * Calculates the HMAC of the given counter encoded as 8 big-endian bytes.
+     *
+     * @param algorithm the HMAC algorithm
+     * @param secret the HMAC key
+     * @param counter the counter
+     * @return The calculated HMAC.
+     * @throws NoSuchAlgorithmException If the algorithm is not supported.
+     * @throws InvalidKeyException If the key is invalid.
+     */
+    static byte[] hmac(OTPParameters.Algorithm algorithm, byte[] secret, long counter) throws NoSuchAlgorithmException, InvalidKeyException {
+        Mac mac = OTPInitializer.getMac(algorithm);
+        mac.init(new SecretKeySpec(secret, "RAW"));
+        return mac.doFinal(ByteBuffer.allocate(Long.BYTES).putLong(counter).array());
+    }
+}
@@ -0,0 +1,136 @@
+package dev.medzik.otp;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import javax.crypto.Mac;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Explicit initialization of the HMAC algorithms used by the OTP generators.
+ * <p>
+ * By default, the first generated code pays for JCA provider discovery. Calling {@link #initialize()}
+ * at startup resolves the provider of every {@link OTPParameters.Algorithm} up front, fails fast if
+ * any of them is missing and pins the resolved providers, so later lookups skip the discovery.
+ */
+public final class OTPInitializer {
+    private static final OTPParameters.Algorithm[] ALGORITHMS = OTPParameters.Algorithm.values();
+    private static final AtomicReferenceArray<Provider> providers = new AtomicReferenceArray<>(ALGORITHMS.length);
+
+    // fixed RFC 4226 test key, so the warm-up does not seed a random generator
+    private static final OTPParameters.Secret WARM_UP_SECRET =
+            new OTPParameters.Secret("12345678901234567890".getBytes(StandardCharsets.US_ASCII));
+
+    private OTPInitializer() {}
+
+    /**
+     * Pins the JCA provider used for the given algorithm.
+     *
+     * @param algorithm the HMAC algorithm
+     * @param provider the provider to use, or null to use the default provider lookup
+     */
+    public static void setProvider(OTPParameters.Algorithm algorithm, Provider provider) {
+        providers.set(algorithm.ordinal(), provider);
+    }
+
+    /**
+     * Returns the JCA provider pinned for the given algorithm.
+     *
+     * @param algorithm the HMAC algorithm
+     * @return The pinned provider, or null if none is pinned.
+     */
+    public static Provider getProvider(OTPParameters.Algorithm algorithm) {
+        return providers.get(algorithm.ordinal());
+    }
+
+    /**
+     * Resolves and pins the providers of all algorithms, without warm-up.
+     *
+     * @return The initialization result.
+     * @throws NoSuchAlgorithmException If any algorithm is not supported by its provider.
+     */
+    public static Result initialize() throws NoSuchAlgorithmException {
+        return initialize(0);
+    }
+
+    /**
+     * Resolves and pins the providers of all algorithms, then generates codes with each of them
+     * to warm up the MAC and JIT paths.
+     *
+     * @param warmUpIterations the number of codes to generate per algorithm
+     * @return The initialization result.
+     * @throws NoSuchAlgorithmException If any algorithm is not supported by its provider.
+     * @throws IllegalArgumentException If the number of iterations is negative.
+     */
+    public static Result initialize(int warmUpIterations) throws NoSuchAlgorithmException, IllegalArgumentException {
+        if (warmUpIterations < 0) {
+            throw new IllegalArgumentException("Warm-up iterations cannot be negative");
+        }
+
+        Map<OTPParameters.Algorithm, Provider> resolved = new EnumMap<>(OTPParameters.Algorithm.class);
+
+        long start = System.nanoTime();
+        for (OTPParameters.Algorithm algorithm : ALGORITHMS) {
+            Provider provider = getMac(algorithm).getProvider();
+            setProvider(algorithm, provider);
+            resolved.put(algorithm, provider);
+        }
+        Duration resolveTime = Duration.ofNanos(System.nanoTime() - start);
+
+        Duration warmUpTime = Duration.ZERO;
+        if (warmUpIterations > 0) {
+            start = System.nanoTime();
+            for (OTPParameters.Algorithm algorithm : ALGORITHMS) {
+                OTPParameters params = OTPParameters.builder()
+                        .type(OTPType.HOTP)
+                        .secret(WARM_UP_SECRET)
+                        .algorithm(algorithm)
+                        .build();
+
+                for (int i = 0; i < warmUpIterations; i++) {
+                    HOTPGenerator.generate(params, i);
+                }
+            }
+            warmUpTime = Duration.ofNanos(System.nanoTime() - start);
+        }
+
+        return new Result(Collections.unmodifiableMap(resolved), resolveTime, warmUpTime);
+    }
+
+    static Mac getMac(OTPParameters.Algorithm algorithm) throws NoSuchAlgorithmException {
+        Provider provider = getProvider(algorithm);
+        if (provider != null) {
+            return Mac.getInstance(algorithm.getHmacAlgorithm(), provider);
+        }
+
+        return Mac.getInstance(algorithm.getHmacAlgorithm());
+    }
+
+    /**
+     * Result of the initialization with the time taken by each phase.
+     */
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    @Getter
+    public static final class Result {
+        /**
+         * The resolved provider of each algorithm.
+         */
+        private final Map<OTPParameters.Algorithm, Provider> providers;
+        /**
+         * The time taken to resolve the providers.
+         */
+        private final Duration resolveTime;
+        /**
+         * The time taken to warm up the algorithms, zero if no warm-up was requested.
+         */
+        private final Duration warmUpTime;
+    }
+}
@@ -1,5 +1,7 @@
 package dev.medzik.otp;
 
+import lombok.experimental.PackagePrivate;
+
 import java.net.URISyntaxException;
 import java.time.Clock;
 import java.util.concurrent.TimeUnit;
@@ -95,7 +97,8 @@ public final class TOTPGenerator {
         return clock.millis() / TimeUnit.SECONDS.toMillis(period.getValue());
     }
 
-    private static void checkOtpType(OTPParameters params) throws IllegalArgumentException {
+    @PackagePrivate
+    static void checkOtpType(OTPParameters params) throws IllegalArgumentException {
         if (params.getType() != OTPType.TOTP) {
             throw new IllegalArgumentException("Invalid OTP type");
         }
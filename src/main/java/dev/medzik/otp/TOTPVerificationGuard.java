@@ -0,0 +1,251 @@
+package dev.medzik.otp;
+
+import lombok.NonNull;
+
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rate-limited TOTP verification.
+ * <p>
+ * Failed attempts are counted in a count-min sketch: a fixed-size table of atomic slots with several
+ * rows, each indexed by a hash seeded randomly per guard. An account is limited only when all of its
+ * slots are over the limit, and the seeds keep attackers from choosing accounts that collide with a
+ * given one. Memory stays bounded no matter how many accounts are verified. Each slot only counts
+ * attempts in the current TOTP period and is reset when the next period starts. Once an account
+ * reaches the limit, further attempts are rejected before any HMAC is computed.
+ * <p>
+ * All slots are shared, so failed attempts of other accounts can lock out an account that has not
+ * failed at all. With {@code F} failed attempts spread over many accounts in one period, a slot holds
+ * about {@code F / slots} of them, and for a limit of 5 the share of falsely locked out accounts is
+ * roughly 2e-10 at {@code F = slots}, 8e-6 at {@code F = 2 * slots} and 10% at {@code F = 5 * slots}.
+ * Choose the number of slots above the number of failed attempts expected in a period; an attacker
+ * failing far more often than that across many accounts can lock out legitimate users.
+ * <p>
+ * A guard counts attempts for a single TOTP period, as counts of different periods cannot share slots.
+ * <p>
+ * The limit is never exceeded, but concurrent attempts for the same account may be rejected slightly
+ * before it is reached.
+ */
+public final class TOTPVerificationGuard {
+    private static final int DEFAULT_SLOTS = 1 << 16;
+    private static final int DEPTH = 4;
+    private static final int MAX_ATTEMPTS = 1 << 16;
+
+    private static final int COUNT_BITS = 20;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long WINDOW_MASK = -1L >>> COUNT_BITS;
+
+    private final int maxAttempts;
+    private final OTPParameters.Period period;
+    private final Clock clock;
+    private final AtomicLongArray slots;
+    private final int slotsPerRow;
+    private final int slotMask;
+    private final long[] seeds = new long[DEPTH];
+
+    private final LongAdder failedAttempts = new LongAdder();
+    private final LongAdder rejectedAttempts = new LongAdder();
+
+    /**
+     * Creates a guard for the given period with the default number of slots and the system UTC clock.
+     *
+     * @param maxAttempts the maximum number of failed attempts per account in a TOTP period
+     * @param period the TOTP period of the verified accounts
+     * @throws IllegalArgumentException If the maximum number of attempts is out of range.
+     */
+    public TOTPVerificationGuard(int maxAttempts, OTPParameters.Period period) throws IllegalArgumentException {
+        this(maxAttempts, period, DEFAULT_SLOTS, Clock.systemUTC());
+    }
+
+    /**
+     * Creates a guard.
+     * <p>
+     * The guard uses {@code 32 * slots} bytes of memory, 8 bytes for each slot in 4 rows.
+     *
+     * @param maxAttempts the maximum number of failed attempts per account in a TOTP period
+     * @param period the TOTP period of the verified accounts
+     * @param slots the number of counter slots in each of the hash rows, must be a power of two
+     * @param clock the clock to use for calculating the current period
+     * @throws IllegalArgumentException If the maximum number of attempts is out of range or the
+     *                                  number of slots is not a power of two.
+     */
+    public TOTPVerificationGuard(int maxAttempts, @NonNull OTPParameters.Period period, int slots, @NonNull Clock clock) throws IllegalArgumentException {
+        if (maxAttempts <= 0 || maxAttempts > MAX_ATTEMPTS) {
+            throw new IllegalArgumentException("Max attempts must be between 1 and " + MAX_ATTEMPTS);
+        }
+
+        if (slots <= 0 || Integer.bitCount(slots) != 1 || slots > Integer.MAX_VALUE / DEPTH) {
+            throw new IllegalArgumentException("Slots must be a power of two");
+        }
+
+        this.maxAttempts = maxAttempts;
+        this.period = period;
+        this.clock = clock;
+        this.slots = new AtomicLongArray(slots * DEPTH);
+        this.slotsPerRow = slots;
+        this.slotMask = slots - 1;
+
+        SecureRandom random = new SecureRandom();
+        for (int i = 0; i < DEPTH; i++) {
+            seeds[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Checks if the given TOTP code is valid for the account, unless the account is over the limit.
+     *
+     * @param account the account identifier
+     * @param params the TOTP parameters
+     * @param code the one-time TOTP code to check
+     * @return True if the TOTP code is valid, false if it is invalid or the attempt was rejected.
+     * @throws IllegalArgumentException If the OTP type is not TOTP or the period differs from the guard's one.
+     */
+    public boolean verify(String account, OTPParameters params, String code) throws IllegalArgumentException {
+        return verify(account, params, code, 1);
+    }
+
+    /**
+     * Checks if the given TOTP code is valid for the account, unless the account is over the limit.
+     *
+     * @param account the account identifier
+     * @param params the TOTP parameters
+     * @param code the one-time TOTP code to check
+     * @param counterOffset the counter offset
+     * @return True if the TOTP code is valid, false if it is invalid or the attempt was rejected.
+     * @throws IllegalArgumentException If the OTP type is not TOTP or the period differs from the guard's one.
+     */
+    public boolean verify(String account, OTPParameters params, String code, int counterOffset) throws IllegalArgumentException {
+        TOTPGenerator.checkOtpType(params);
+
+        if (params.getPeriod() != period) {
+            throw new IllegalArgumentException("Invalid TOTP period, the guard counts attempts for " + period.getValue() + " seconds");
+        }
+
+        long counter = TOTPGenerator.calculateCounter(clock, period);
+        long window = counter & WINDOW_MASK;
+        int[] indexes = slotsOf(account);
+
+        // reserve the attempt in all rows first, then read them back, so concurrent guesses cannot exceed the limit
+        for (int index : indexes) {
+            increment(index, window);
+        }
+
+        if (minCount(indexes, window) > maxAttempts) {
+            release(indexes, window);
+            rejectedAttempts.increment();
+            return false;
+        }
+
+        if (HOTPGenerator.verify(params, code, counter, counterOffset)) {
+            release(indexes, window);
+            return true;
+        }
+
+        failedAttempts.increment();
+        return false;
+    }
+
+    /**
+     * Returns the estimated number of attempts for the account in the current TOTP period.
+     * <p>
+     * The value is the smallest count of the account's slots. It includes attempts that are still
+     * being verified, and may include attempts of other accounts sharing all of these slots.
+     *
+     * @param account the account identifier
+     * @return The estimated number of attempts.
+     */
+    public int getAttempts(String account) {
+        long window = TOTPGenerator.calculateCounter(clock, period) & WINDOW_MASK;
+        return (int) minCount(slotsOf(account), window);
+    }
+
+    /**
+     * Returns the total number of failed verifications since the guard was created.
+     *
+     * @return The number of failed verifications.
+     */
+    public long getTotalFailedAttempts() {
+        return failedAttempts.sum();
+    }
+
+    /**
+     * Returns the total number of attempts rejected for being over the limit since the guard was created.
+     *
+     * @return The number of rejected attempts.
+     */
+    public long getTotalRejectedAttempts() {
+        return rejectedAttempts.sum();
+    }
+
+    private void increment(int index, long window) {
+        while (true) {
+            long value = slots.get(index);
+
+            // the slot has already moved on to a newer period
+            if (windowOf(value) > window) {
+                return;
+            }
+
+            long count = windowOf(value) == window ? value & COUNT_MASK : 0;
+
+            if (slots.compareAndSet(index, value, (window << COUNT_BITS) | (count + 1))) {
+                return;
+            }
+        }
+    }
+
+    private void release(int[] indexes, long window) {
+        for (int index : indexes) {
+            while (true) {
+                long value = slots.get(index);
+
+                // the slot has already moved on to a newer period
+                if (windowOf(value) != window || (value & COUNT_MASK) == 0) {
+                    break;
+                }
+
+                if (slots.compareAndSet(index, value, value - 1)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private long minCount(int[] indexes, long window) {
+        long min = Long.MAX_VALUE;
+        for (int index : indexes) {
+            long value = slots.get(index);
+            min = Math.min(min, windowOf(value) == window ? value & COUNT_MASK : 0);
+        }
+
+        return min;
+    }
+
+    private int[] slotsOf(String account) {
+        int[] indexes = new int[DEPTH];
+        for (int row = 0; row < DEPTH; row++) {
+            // seeded FNV-1a followed by the MurmurHash3 finalizer
+            long h = seeds[row];
+            for (int i = 0; i < account.length(); i++) {
+                h = (h ^ account.charAt(i)) * 0x100000001b3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+
+            indexes[row] = row * slotsPerRow + ((int) h & slotMask);
+        }
+
+        return indexes;
+    }
+
+    // the packed slot value keeps the period in the upper bits and the count in the lower ones
+    private static long windowOf(long value) {
+        return value >>> COUNT_BITS;
+    }
+}
@@ -0,0 +1,91 @@
+package dev.medzik.otp;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * HMAC calculation used on the HOTP hot path (Java 17+ variant).
+ * <p>
+ * {@link Mac} instances are reused through a small lock-free pool per algorithm instead of being
+ * looked up on every call. The pool is not bound to threads, so it works the same with virtual
+ * threads, and its size is fixed, so idle instances do not pile up.
+ */
+final class HmacUtils {
+    private static final VarHandle LONG_BIG_ENDIAN = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private static final int POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final AtomicReferenceArray<Mac> pool = new AtomicReferenceArray<>(OTPParameters.Algorithm.values().length * POOL_SIZE);
+
+    private HmacUtils() {}
+
+    /**
+     * Calculates the HMAC of the given counter encoded as 8 big-endian bytes.
+     *
+     * @param algorithm the HMAC algorithm
+     * @param secret the HMAC key
+     * @param counter the counter
+     * @return The calculated HMAC.
+     * @throws NoSuchAlgorithmException If the algorithm is not supported.
+     * @throws InvalidKeyException If the key is invalid.
+     */
+    static byte[] hmac(OTPParameters.Algorithm algorithm, byte[] secret, long counter) throws NoSuchAlgorithmException, InvalidKeyException {
+        Mac mac = borrow(algorithm);
+        if (mac == null) {
+            mac = OTPInitializer.getMac(algorithm);
+        }
+
+        byte[] data = new byte[Long.BYTES];
+        LONG_BIG_ENDIAN.set(data, 0, counter);
+
+        mac.init(new SecretKeySpec(secret, "RAW"));
+        byte[] hash = mac.doFinal(data);
+
+        // only returned after a successful use, so the pool never holds a Mac in an unknown state
+        giveBack(algorithm, mac);
+        return hash;
+    }
+
+    private static Mac borrow(OTPParameters.Algorithm algorithm) {
+        Provider pinned = OTPInitializer.getProvider(algorithm);
+        int base = algorithm.ordinal() * POOL_SIZE;
+        int start = start();
+
+        for (int i = 0; i < POOL_SIZE; i++) {
+            int index = base + (start + i) % POOL_SIZE;
+            Mac mac = pool.get(index);
+
+            if (mac != null && pool.compareAndSet(index, mac, null)) {
+                // drop instances from a provider that is no longer pinned
+                if (pinned == null || mac.getProvider() == pinned) {
+                    return mac;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static void giveBack(OTPParameters.Algorithm algorithm, Mac mac) {
+        int base = algorithm.ordinal() * POOL_SIZE;
+        int start = start();
+
+        for (int i = 0; i < POOL_SIZE; i++) {
+            int index = base + (start + i) % POOL_SIZE;
+            if (pool.get(index) == null && pool.compareAndSet(index, null, mac)) {
+                return;
+            }
+        }
+    }
+
+    // spread threads over the pool to avoid contention on the same slots
+    private static int start() {
+        return (int) ((Thread.currentThread().getId() & Integer.MAX_VALUE) % POOL_SIZE);
+    }
+}
@@ -0,0 +1,233 @@
+package dev.medzik.otp;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Multi-threaded correctness tests of the shared generator paths against RFC 4226 and RFC 6238 vectors.
+ * <p>
+ * The throughput report is disabled by default, run it with
+ * {@code mvn test -Dtest=ConcurrencyTests -Dotp.loadtest=true}.
+ */
+public class ConcurrencyTests {
+    private static final int TASKS = 64;
+    private static final int ITERATIONS = 200;
+
+    private static final String[] HOTP_CODES = HOTPGeneratorTests.RFC_4226_CODES;
+
+    private static final long[] TOTP_TIMES = {59L, 1111111109L, 1111111111L, 1234567890L, 2000000000L, 20000000000L};
+    private static final String[][] TOTP_CODES = {
+            {"94287082", "07081804", "14050471", "89005924", "69279037", "65353130"},
+            {"46119246", "68084774", "67062674", "91819424", "90698825", "77737706"},
+            {"90693936", "25091201", "99943326", "93441116", "38618901", "47863826"}
+    };
+
+    private static final OTPParameters HOTP_PARAMS = OTPParameters.builder()
+            .type(OTPType.HOTP)
+            .secret(secret("12345678901234567890"))
+            .build();
+
+    private static final OTPParameters[] TOTP_PARAMS = {
+            totpParams(OTPParameters.Algorithm.SHA1, "12345678901234567890"),
+            totpParams(OTPParameters.Algorithm.SHA256, "12345678901234567890123456789012"),
+            totpParams(OTPParameters.Algorithm.SHA512, "1234567890123456789012345678901234567890123456789012345678901234")
+    };
+
+    @Test
+    public void testPlatformThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2);
+        try {
+            assertEquals(TASKS * ITERATIONS, runVectors(executor, TASKS, ITERATIONS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testVirtualThreads() throws Exception {
+        ExecutorService executor = newVirtualThreadExecutor();
+        assumeTrue(executor != null, "Virtual threads are not supported");
+        try {
+            assertEquals(TASKS * ITERATIONS, runVectors(executor, TASKS, ITERATIONS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testVerificationGuardLimit() throws Exception {
+        int maxAttempts = 10;
+        Clock clock = Clock.fixed(Instant.ofEpochSecond(1111111109L), ZoneOffset.UTC);
+        TOTPVerificationGuard guard = new TOTPVerificationGuard(maxAttempts, OTPParameters.Period.THIRTY, 1024, clock);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2);
+        try {
+            List<Callable<Boolean>> tasks = new ArrayList<>();
+            for (int i = 0; i < TASKS * 4; i++) {
+                tasks.add(() -> guard.verify("alice", TOTP_PARAMS[0], "00000000"));
+            }
+
+            for (Future<Boolean> future : executor.invokeAll(tasks)) {
+                assertFalse(future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // concurrent attempts may be rejected early, but never go over the limit
+        long failed = guard.getTotalFailedAttempts();
+        assertTrue(failed <= maxAttempts);
+        assertEquals(TASKS * 4, failed + guard.getTotalRejectedAttempts());
+        assertEquals(failed, guard.getAttempts("alice"));
+
+        // the rest of the limit is still available afterwards
+        for (long i = failed; i < maxAttempts; i++) {
+            assertFalse(guard.verify("alice", TOTP_PARAMS[0], "00000000"));
+        }
+        assertEquals(maxAttempts, guard.getTotalFailedAttempts());
+        assertEquals(maxAttempts, guard.getAttempts("alice"));
+
+        long rejected = guard.getTotalRejectedAttempts();
+        assertFalse(guard.verify("alice", TOTP_PARAMS[0], "07081804"));
+        assertEquals(rejected + 1, guard.getTotalRejectedAttempts());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "otp.loadtest", matches = "true")
+    public void testThroughputScaling() throws Exception {
+        int iterations = 5_000;
+
+        // warm up before measuring
+        ExecutorService warmUp = Executors.newSingleThreadExecutor();
+        try {
+            runVectors(warmUp, 1, iterations);
+        } finally {
+            warmUp.shutdownNow();
+        }
+
+        System.out.printf("%-10s %8s %14s%n", "executor", "tasks", "ops/s");
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads < cores; threads *= 2) {
+            report("platform", threads, Executors.newFixedThreadPool(threads), iterations);
+        }
+        report("platform", cores, Executors.newFixedThreadPool(cores), iterations);
+
+        ExecutorService virtual = newVirtualThreadExecutor();
+        if (virtual != null) {
+            report("virtual", TASKS, virtual, iterations);
+        }
+    }
+
+    private static void report(String name, int tasks, ExecutorService executor, int iterations) throws Exception {
+        try {
+            long start = System.nanoTime();
+            int operations = runVectors(executor, tasks, iterations);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            assertEquals(tasks * iterations, operations);
+            System.out.printf("%-10s %8d %14.0f%n", name + "/" + tasks, tasks, operations / seconds);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Generates and verifies codes from the given number of tasks at once.
+     * Fails with the first mismatching vector, if any.
+     *
+     * @return The number of operations that matched the expected vector.
+     */
+    private static int runVectors(ExecutorService executor, int tasks, int iterations) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger matched = new AtomicInteger();
+        AtomicReference<String> mismatch = new AtomicReference<>();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < tasks; t++) {
+            int seed = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+
+                for (int i = 0; i < iterations; i++) {
+                    int n = seed + i;
+                    String error = null;
+
+                    if (n % 2 == 0) {
+                        int counter = (n / 2) % HOTP_CODES.length;
+                        String code = HOTPGenerator.generate(HOTP_PARAMS, counter);
+                        if (!HOTP_CODES[counter].equals(code)) {
+                            error = "HOTP counter " + counter + ": expected " + HOTP_CODES[counter] + " but was " + code;
+                        } else if (!HOTPGenerator.verify(HOTP_PARAMS, code, counter)) {
+                            error = "HOTP counter " + counter + ": verify returned false";
+                        }
+                    } else {
+                        // vary the algorithm fastest, so every algorithm is paired with every time
+                        int algorithm = (n / 2) % TOTP_PARAMS.length;
+                        int time = (n / 2 / TOTP_PARAMS.length) % TOTP_TIMES.length;
+                        OTPParameters params = TOTP_PARAMS[algorithm];
+                        String code = TOTPGenerator.at(params, TOTP_TIMES[time]);
+                        long counter = TOTPGenerator.calculateCounter(TOTP_TIMES[time], params.getPeriod());
+                        if (!TOTP_CODES[algorithm][time].equals(code)) {
+                            error = "TOTP " + params.getAlgorithm() + " at " + TOTP_TIMES[time]
+                                    + ": expected " + TOTP_CODES[algorithm][time] + " but was " + code;
+                        } else if (!HOTPGenerator.verify(params, code, counter, 1)) {
+                            error = "TOTP " + params.getAlgorithm() + " at " + TOTP_TIMES[time] + ": verify returned false";
+                        }
+                    }
+
+                    if (error == null) {
+                        matched.incrementAndGet();
+                    } else {
+                        mismatch.compareAndSet(null, error + " (task " + seed + ")");
+                    }
+                }
+
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+
+        assertNull(mismatch.get());
+
+        return matched.get();
+    }
+
+    // virtual threads are only available on Java 21+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static OTPParameters totpParams(OTPParameters.Algorithm algorithm, String secret) {
+        return OTPParameters.builder()
+                .type(OTPType.TOTP)
+                .secret(secret(secret))
+                .algorithm(algorithm)
+                .digits(OTPParameters.Digits.EIGHT)
+                .build();
+    }
+
+    private static OTPParameters.Secret secret(String value) {
+        return new OTPParameters.Secret(value.getBytes(StandardCharsets.US_ASCII));
+    }
+}
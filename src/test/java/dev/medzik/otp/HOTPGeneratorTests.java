@@ -3,11 +3,19 @@ package dev.medzik.otp;
 import org.junit.jupiter.api.Test;
 
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class HOTPGeneratorTests {
+    // RFC 4226 Appendix D codes for counters 0-9 with the secret "12345678901234567890"
+    static final String[] RFC_4226_CODES = {
+            "755224", "287082", "359152", "969429", "338314",
+            "254676", "287922", "162583", "399871", "520489"
+    };
+
     @Test
     public void testHOTPFromUrl() throws URISyntaxException {
         String uri = "otpauth://hotp/Example:alice@google.com?secret=JBSWY3DPEHPK3PXP&issuer=Example&algorithm=SHA256&digits=7&counter=0";
@@ -25,4 +33,16 @@ public class HOTPGeneratorTests {
         String code = HOTPGenerator.generate(params, 1);
         assertTrue(HOTPGenerator.verify(params, code, 1));
     }
+
+    @Test
+    public void testHOTPRfc4226Vectors() {
+        OTPParameters params = OTPParameters.builder()
+                .type(OTPType.HOTP)
+                .secret(new OTPParameters.Secret("12345678901234567890".getBytes(StandardCharsets.US_ASCII)))
+                .build();
+
+        for (int i = 0; i < RFC_4226_CODES.length; i++) {
+            assertEquals(RFC_4226_CODES[i], HOTPGenerator.generate(params, i));
+        }
+    }
 }
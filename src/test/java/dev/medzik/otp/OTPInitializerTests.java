@@ -0,0 +1,64 @@
+package dev.medzik.otp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.Security;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OTPInitializerTests {
+    @AfterEach
+    public void resetProviders() {
+        for (OTPParameters.Algorithm algorithm : OTPParameters.Algorithm.values()) {
+            OTPInitializer.setProvider(algorithm, null);
+        }
+    }
+
+    @Test
+    public void testInitialize() throws NoSuchAlgorithmException {
+        OTPInitializer.Result result = OTPInitializer.initialize(100);
+
+        for (OTPParameters.Algorithm algorithm : OTPParameters.Algorithm.values()) {
+            assertNotNull(result.getProviders().get(algorithm));
+            assertSame(result.getProviders().get(algorithm), OTPInitializer.getProvider(algorithm));
+        }
+
+        assertFalse(result.getResolveTime().isNegative());
+        assertFalse(result.getWarmUpTime().isNegative());
+
+        OTPParameters params = OTPParameters.builder()
+                .type(OTPType.TOTP)
+                .secret(new OTPParameters.Secret("JBSWY3DPEHPK3PXP"))
+                .build();
+        assertEquals("785021", TOTPGenerator.at(params, 1707566984));
+    }
+
+    @Test
+    public void testPinnedProvider() {
+        // the SUN provider does not implement any HMAC algorithm
+        OTPInitializer.setProvider(OTPParameters.Algorithm.SHA256, Security.getProvider("SUN"));
+
+        assertThrows(NoSuchAlgorithmException.class, OTPInitializer::initialize);
+
+        OTPParameters params = OTPParameters.builder()
+                .type(OTPType.HOTP)
+                .secret(new OTPParameters.Secret("JBSWY3DPEHPK3PXP"))
+                .algorithm(OTPParameters.Algorithm.SHA256)
+                .build();
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> HOTPGenerator.generate(params, 1));
+        assertInstanceOf(NoSuchAlgorithmException.class, e.getCause());
+    }
+
+    @Test
+    public void testNegativeWarmUpIterations() {
+        assertThrows(IllegalArgumentException.class, () -> OTPInitializer.initialize(-1));
+    }
+
+    @Test
+    public void testInitializeWithoutWarmUp() throws NoSuchAlgorithmException {
+        assertEquals(Duration.ZERO, OTPInitializer.initialize().getWarmUpTime());
+    }
+}
@@ -0,0 +1,134 @@
+package dev.medzik.otp;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TOTPVerificationGuardTests {
+    private static final OTPParameters PARAMS = OTPParameters.builder()
+            .type(OTPType.TOTP)
+            .secret(new OTPParameters.Secret("JBSWY3DPEHPK3PXP"))
+            .build();
+
+    @Test
+    public void testRejectsOverLimit() {
+        MutableClock clock = new MutableClock(1707566984);
+        TOTPVerificationGuard guard = new TOTPVerificationGuard(3, OTPParameters.Period.THIRTY, 1024, clock);
+
+        assertTrue(guard.verify("alice", PARAMS, "785021"));
+        assertEquals(0, guard.getAttempts("alice"));
+
+        for (int i = 0; i < 3; i++) {
+            assertFalse(guard.verify("alice", PARAMS, "000000"));
+        }
+        assertEquals(3, guard.getAttempts("alice"));
+
+        // the valid code is rejected now, without being checked
+        assertFalse(guard.verify("alice", PARAMS, "785021"));
+        assertEquals(3, guard.getTotalFailedAttempts());
+        assertEquals(1, guard.getTotalRejectedAttempts());
+
+        // attempts are reset in the next period
+        clock.unixSeconds = 1707567150;
+        assertEquals(0, guard.getAttempts("alice"));
+        assertTrue(guard.verify("alice", PARAMS, "342204"));
+    }
+
+    @Test
+    public void testCollidingAccounts() {
+        // "Aa" and "BB" have the same String hash code
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+
+        TOTPVerificationGuard guard = new TOTPVerificationGuard(3, OTPParameters.Period.THIRTY, 1024, new MutableClock(1707566984));
+
+        for (int i = 0; i < 4; i++) {
+            assertFalse(guard.verify("Aa", PARAMS, "000000"));
+        }
+        assertEquals(1, guard.getTotalRejectedAttempts());
+
+        assertEquals(0, guard.getAttempts("BB"));
+        assertTrue(guard.verify("BB", PARAMS, "785021"));
+    }
+
+    @Test
+    public void testMixedPeriods() {
+        OTPParameters params60 = OTPParameters.builder()
+                .type(OTPType.TOTP)
+                .secret(new OTPParameters.Secret("JBSWY3DPEHPK3PXP"))
+                .period(OTPParameters.Period.SIXTY)
+                .build();
+
+        // a single slot per row, so all accounts share their counts
+        TOTPVerificationGuard guard = new TOTPVerificationGuard(3, OTPParameters.Period.SIXTY, 1, new MutableClock(1707566984));
+
+        assertThrows(IllegalArgumentException.class, () -> guard.verify("other", PARAMS, "000000"));
+
+        assertFalse(guard.verify("other", params60, "000000"));
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(guard.verify("alice", params60, "000000"));
+        }
+        assertEquals(3, guard.getTotalFailedAttempts());
+        assertEquals(998, guard.getTotalRejectedAttempts());
+    }
+
+    @Test
+    public void testFalseLockoutsAreRare() {
+        int slots = 1024;
+        TOTPVerificationGuard guard = new TOTPVerificationGuard(5, OTPParameters.Period.THIRTY, slots, new MutableClock(1707566984));
+
+        // one failed attempt per slot, spread over distinct accounts
+        for (int i = 0; i < slots; i++) {
+            assertFalse(guard.verify("attacker-" + i, PARAMS, "000000"));
+        }
+
+        int locked = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (!guard.verify("user-" + i, PARAMS, "785021")) {
+                locked++;
+            }
+        }
+
+        // expected to be around 2e-10 of the accounts
+        assertTrue(locked <= 1, "falsely locked out accounts: " + locked);
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new TOTPVerificationGuard(0, OTPParameters.Period.THIRTY));
+        assertThrows(IllegalArgumentException.class, () -> new TOTPVerificationGuard(5, OTPParameters.Period.THIRTY, 1000, Clock.systemUTC()));
+
+        OTPParameters hotp = OTPParameters.builder()
+                .type(OTPType.HOTP)
+                .secret(new OTPParameters.Secret("JBSWY3DPEHPK3PXP"))
+                .build();
+        assertThrows(IllegalArgumentException.class, () -> new TOTPVerificationGuard(5, OTPParameters.Period.THIRTY).verify("alice", hotp, "000000"));
+    }
+
+    private static final class MutableClock extends Clock {
+        private long unixSeconds;
+
+        private MutableClock(long unixSeconds) {
+            this.unixSeconds = unixSeconds;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochSecond(unixSeconds);
+        }
+    }
+}